@@ -114,6 +114,48 @@ public class AutoClickerModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void setTrackingEnabled(boolean enabled, Promise promise) {
+        try {
+            if (enabled && !AutoClickerService.isTrackingAvailable()) {
+                promise.reject("UNSUPPORTED", "Target tracking requires Android 11 or newer");
+                return;
+            }
+            AutoClickerService.sendSetTracking(getReactApplicationContext(), enabled);
+            promise.resolve(enabled);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void isTrackingEnabled(Promise promise) {
+        try {
+            promise.resolve(AutoClickerService.isTrackingRequested());
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void setControlServerEnabled(boolean enabled, Promise promise) {
+        try {
+            AutoClickerService.sendSetControlServer(getReactApplicationContext(), enabled);
+            promise.resolve(enabled);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void isControlServerEnabled(Promise promise) {
+        try {
+            promise.resolve(AutoClickerService.isControlServerRequested());
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
     private boolean canDrawOverlays() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             return Settings.canDrawOverlays(getReactApplicationContext());
@@ -6,26 +6,55 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.graphics.Bitmap;
 import android.graphics.Path;
 import android.graphics.PixelFormat;
+import android.hardware.HardwareBuffer;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.Display;
 import android.view.accessibility.AccessibilityEvent;
+import androidx.annotation.RequiresApi;
 import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 public class AutoClickerService extends AccessibilityService {
     private static final String TAG = "AutoClickerService";
-    private static final String ACTION_START_CLICKING = "com.wosguides.START_CLICKING";
-    private static final String ACTION_STOP_CLICKING = "com.wosguides.STOP_CLICKING";
-    private static final String ACTION_SET_CLICK_POSITION = "com.wosguides.SET_CLICK_POSITION";
+    public static final String ACTION_START_CLICKING = "com.wosguides.START_CLICKING";
+    public static final String ACTION_STOP_CLICKING = "com.wosguides.STOP_CLICKING";
+    public static final String ACTION_SET_CLICK_POSITION = "com.wosguides.SET_CLICK_POSITION";
+    public static final String ACTION_SET_TRACKING = "com.wosguides.SET_TRACKING";
+    private static final String ACTION_SET_CONTROL_SERVER = "com.wosguides.SET_CONTROL_SERVER";
     public static final String ACTION_CLICK_PERFORMED = "com.wosguides.CLICK_PERFORMED";
+    public static final String ACTION_TARGET_TRACKED = "com.wosguides.TARGET_TRACKED";
 
     private Handler clickHandler;
     private boolean isClicking = false;
     private int clickX = 500; // Default click position
     private int clickY = 500;
     private static final int CLICK_INTERVAL = 500; // 500ms interval
+    private static final int TRACKING_SEED_DELAY = 150; // Let the overlay hide the target before the first frame
+    // takeScreenshot() rejects requests closer together than 1s (333ms from Android 14), plus some slack
+    private static final int SCREENSHOT_INTERVAL =
+            (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE ? 333 : 1000) + 20;
+
+    // Moving-target tracking (requires screenshots, Android 11+)
+    private boolean isTracking = false;
+    private static volatile boolean trackingRequested = false; // Last requested state, for overlays started later
+    private final TargetTracker tracker = new TargetTracker();
+    private ExecutorService trackingExecutor;
+    private long lastScreenshotRequest = 0; // SystemClock.uptimeMillis(), main thread only
+
+    // Opt-in local socket for external automation
+    private ControlServer controlServer;
+    private static volatile boolean controlServerRequested = false; // Applied when the service (re)starts
 
     private BroadcastReceiver receiver = new BroadcastReceiver() {
         @Override
@@ -38,6 +67,13 @@ public class AutoClickerService extends AccessibilityService {
             } else if (ACTION_SET_CLICK_POSITION.equals(action)) {
                 clickX = intent.getIntExtra("x", clickX);
                 clickY = intent.getIntExtra("y", clickY);
+                // A new position means a new target, re-seed on the next frame
+                trackingExecutor.execute(tracker::reset);
+            } else if (ACTION_SET_TRACKING.equals(action)) {
+                isTracking = intent.getBooleanExtra("enabled", false);
+                trackingExecutor.execute(tracker::reset);
+            } else if (ACTION_SET_CONTROL_SERVER.equals(action)) {
+                setControlServerEnabled(intent.getBooleanExtra("enabled", false));
             }
         }
     };
@@ -46,12 +82,19 @@ public class AutoClickerService extends AccessibilityService {
     public void onCreate() {
         super.onCreate();
         clickHandler = new Handler(Looper.getMainLooper());
+        trackingExecutor = Executors.newSingleThreadExecutor();
+        isTracking = trackingRequested;
+        if (controlServerRequested) {
+            setControlServerEnabled(true);
+        }
 
         // Register broadcast receiver
         IntentFilter filter = new IntentFilter();
         filter.addAction(ACTION_START_CLICKING);
         filter.addAction(ACTION_STOP_CLICKING);
         filter.addAction(ACTION_SET_CLICK_POSITION);
+        filter.addAction(ACTION_SET_TRACKING);
+        filter.addAction(ACTION_SET_CONTROL_SERVER);
         LocalBroadcastManager.getInstance(this).registerReceiver(receiver, filter);
     }
 
@@ -60,6 +103,8 @@ public class AutoClickerService extends AccessibilityService {
         super.onDestroy();
         stopClicking();
         LocalBroadcastManager.getInstance(this).unregisterReceiver(receiver);
+        setControlServerEnabled(false);
+        trackingExecutor.shutdownNow();
     }
 
     @Override
@@ -75,7 +120,12 @@ public class AutoClickerService extends AccessibilityService {
     private void startClicking() {
         if (!isClicking) {
             isClicking = true;
-            performClick();
+            if (isTrackingSupported()) {
+                trackingExecutor.execute(tracker::reset);
+                clickHandler.postDelayed(() -> performClick(), TRACKING_SEED_DELAY);
+            } else {
+                performClick();
+            }
         }
     }
 
@@ -86,9 +136,187 @@ public class AutoClickerService extends AccessibilityService {
         }
     }
 
+    private void setControlServerEnabled(boolean enabled) {
+        if (enabled) {
+            if (controlServer == null) {
+                controlServer = new ControlServer(controlListener);
+            }
+            try {
+                controlServer.start();
+            } catch (IOException e) {
+                Log.e(TAG, "Error starting control server: " + e.getMessage());
+            }
+        } else if (controlServer != null) {
+            controlServer.stop();
+        }
+    }
+
+    // Commands from the control socket go through the same broadcasts as the overlay and
+    // the RN bridge, so the overlay and the requested tracking state stay in sync
+    private final ControlDispatcher.Listener controlListener = new ControlDispatcher.Listener() {
+        @Override
+        public void onStartCommand() {
+            sendStartClicking(AutoClickerService.this);
+        }
+
+        @Override
+        public void onStopCommand() {
+            sendStopClicking(AutoClickerService.this);
+        }
+
+        @Override
+        public void onSetPositionCommand(int x, int y) {
+            sendSetClickPosition(AutoClickerService.this, x, y);
+        }
+
+        @Override
+        public void onSetTrackingCommand(boolean enabled) {
+            // Same check as the RN bridge: otherwise the overlay hides its target for tracking that never runs
+            if (enabled && !isTrackingAvailable()) {
+                Log.w(TAG, "Ignoring tracking command, target tracking requires Android 11 or newer");
+                return;
+            }
+            sendSetTracking(AutoClickerService.this, enabled);
+        }
+    };
+
+    private boolean isTrackingSupported() {
+        return isTracking && isTrackingAvailable();
+    }
+
     private void performClick() {
         if (!isClicking) return;
 
+        if (isTrackingSupported()) {
+            // Every tracked tap needs a fresh screenshot, so tapping waits for the next one the platform allows
+            long wait = lastScreenshotRequest + SCREENSHOT_INTERVAL - SystemClock.uptimeMillis();
+            if (wait > 0) {
+                clickHandler.postDelayed(() -> performClick(), wait);
+                return;
+            }
+            lastScreenshotRequest = SystemClock.uptimeMillis();
+            trackAndClick();
+        } else {
+            dispatchClick();
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.R)
+    private void trackAndClick() {
+        final int seedX = clickX;
+        final int seedY = clickY;
+        takeScreenshot(Display.DEFAULT_DISPLAY, trackingExecutor, new TakeScreenshotCallback() {
+            @Override
+            public void onSuccess(ScreenshotResult screenshot) {
+                boolean found = false;
+                long frameTime = TimeUnit.NANOSECONDS.toMillis(screenshot.getTimestamp());
+                HardwareBuffer buffer = screenshot.getHardwareBuffer();
+                try {
+                    Bitmap hardwareBitmap = Bitmap.wrapHardwareBuffer(buffer, screenshot.getColorSpace());
+                    if (hardwareBitmap != null) {
+                        // Hardware bitmaps can't be read directly, copy once and read only the window we need
+                        Bitmap frame = hardwareBitmap.copy(Bitmap.Config.ARGB_8888, false);
+                        hardwareBitmap.recycle();
+                        if (frame != null) {
+                            found = trackFrame(frame, seedX, seedY, frameTime);
+                            frame.recycle();
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error tracking target: " + e.getMessage());
+                } finally {
+                    buffer.close();
+                }
+
+                final boolean tracked = found;
+                final int trackedX = tracker.getX();
+                final int trackedY = tracker.getY();
+                clickHandler.post(() -> {
+                    if (tracked) {
+                        clickX = trackedX;
+                        clickY = trackedY;
+                        sendTargetTracked(trackedX, trackedY);
+                    }
+                    dispatchClick();
+                });
+            }
+
+            @Override
+            public void onFailure(int errorCode) {
+                if (errorCode == ERROR_TAKE_SCREENSHOT_INTERVAL_TIME_SHORT) {
+                    // Requested too early after all, try again rather than tap a stale position
+                    Log.w(TAG, "Screenshot rate limited, retrying");
+                    clickHandler.post(() -> {
+                        lastScreenshotRequest = SystemClock.uptimeMillis();
+                        performClick();
+                    });
+                    return;
+                }
+                Log.w(TAG, "Screenshot failed with code " + errorCode + ", clicking last position");
+                clickHandler.post(() -> dispatchClick());
+            }
+        });
+    }
+
+    /**
+     * Runs on the tracking executor. Returns true when the tracker has a fresh position.
+     */
+    private boolean trackFrame(Bitmap frame, int seedX, int seedY, long frameTime) {
+        if (!tracker.isSeeded()) {
+            int[] bounds = tracker.getSeedBounds(seedX, seedY);
+            Region region = readLuma(frame, bounds);
+            if (region == null || !tracker.seed(region.luma, region.left, region.top,
+                    region.width, region.height, seedX, seedY, frameTime)) {
+                Log.w(TAG, "Target too close to the screen edge to track");
+            }
+            return false;
+        }
+
+        Region region = readLuma(frame, tracker.getSearchBounds(frameTime));
+        return region != null && tracker.update(region.luma, region.left, region.top,
+                region.width, region.height, frameTime);
+    }
+
+    private static Region readLuma(Bitmap frame, int[] bounds) {
+        int left = Math.max(0, bounds[0]);
+        int top = Math.max(0, bounds[1]);
+        int right = Math.min(frame.getWidth(), bounds[2]);
+        int bottom = Math.min(frame.getHeight(), bounds[3]);
+        if (right <= left || bottom <= top) return null;
+
+        Region region = new Region(left, top, right - left, bottom - top);
+        int[] argb = new int[region.width * region.height];
+        frame.getPixels(argb, 0, region.width, left, top, region.width, region.height);
+        TargetTracker.argbToLuma(argb, region.luma, argb.length);
+        return region;
+    }
+
+    private static class Region {
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+        final byte[] luma;
+
+        Region(int left, int top, int width, int height) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.luma = new byte[width * height];
+        }
+    }
+
+    private void sendTargetTracked(int x, int y) {
+        Intent intent = new Intent(ACTION_TARGET_TRACKED);
+        intent.putExtra("x", x);
+        intent.putExtra("y", y);
+        LocalBroadcastManager.getInstance(this).sendBroadcast(intent);
+    }
+
+    private void dispatchClick() {
+        if (!isClicking) return;
+
         // Create a gesture path for clicking
         Path clickPath = new Path();
         clickPath.moveTo(clickX, clickY);
@@ -146,4 +374,33 @@ public class AutoClickerService extends AccessibilityService {
         intent.putExtra("y", y);
         LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tracking needs AccessibilityService.takeScreenshot(), added in Android 11.
+     */
+    public static boolean isTrackingAvailable() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
+
+    public static boolean isTrackingRequested() {
+        return trackingRequested;
+    }
+
+    public static void sendSetTracking(Context context, boolean enabled) {
+        trackingRequested = enabled;
+        Intent intent = new Intent(ACTION_SET_TRACKING);
+        intent.putExtra("enabled", enabled);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+    }
+
+    public static boolean isControlServerRequested() {
+        return controlServerRequested;
+    }
+
+    public static void sendSetControlServer(Context context, boolean enabled) {
+        controlServerRequested = enabled;
+        Intent intent = new Intent(ACTION_SET_CONTROL_SERVER);
+        intent.putExtra("enabled", enabled);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
+    }
+}
@@ -0,0 +1,230 @@
+package com.wosguides;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The Android-free half of {@link ControlServer}: reads frames from a connection, queues
+ * the decoded commands and drains them on an {@link Executor} (the main thread in the app).
+ *
+ * The queue is bounded; when it is full the reader blocks, which stops reading the socket
+ * and pushes back on the client. Runs of position updates within a frame collapse into the
+ * last one, since only the latest target matters by the time the executor runs.
+ *
+ * A dispatcher is single use: once closed it never delivers another command, so a
+ * restarted server gets a new one rather than inheriting commands from old connections.
+ */
+public class ControlDispatcher {
+    static final int QUEUE_CAPACITY = 256;
+
+    private static final int TYPE_START = 0;
+    private static final int TYPE_STOP = 1;
+    private static final int TYPE_SET_POSITION = 2;
+    private static final int TYPE_SET_TRACKING = 3;
+
+    public interface Listener {
+        void onStartCommand();
+
+        void onStopCommand();
+
+        void onSetPositionCommand(int x, int y);
+
+        void onSetTrackingCommand(boolean enabled);
+    }
+
+    private final Executor executor;
+    private final Listener listener;
+    private final BlockingQueue<Command> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final Set<Thread> readers = new HashSet<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param executor runs the listener, one task at a time
+     */
+    public ControlDispatcher(Executor executor, Listener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Drops queued commands, stops the listener from receiving any more and interrupts the
+     * readers, including any blocked on a full queue. Closing the socket alone would leave
+     * those decoding the rest of their frame.
+     */
+    public void close() {
+        running = false;
+        synchronized (readers) {
+            for (Thread reader : readers) {
+                reader.interrupt();
+            }
+        }
+        queue.clear();
+    }
+
+    /**
+     * Reads frames until the connection ends, answering pings once their frame is queued.
+     *
+     * @throws java.io.EOFException when the client disconnects
+     * @throws InterruptedException when the dispatcher is closed while this reader waits for the queue
+     */
+    public void serve(InputStream input, OutputStream out) throws IOException, InterruptedException {
+        Thread reader = Thread.currentThread();
+        synchronized (readers) {
+            readers.add(reader);
+        }
+        try {
+            readFrames(input, out);
+        } finally {
+            synchronized (readers) {
+                readers.remove(reader);
+            }
+        }
+    }
+
+    private void readFrames(InputStream input, OutputStream out) throws IOException, InterruptedException {
+        DataInputStream in = new DataInputStream(input);
+        byte[] payload = new byte[ControlProtocol.MAX_PAYLOAD_SIZE];
+        ByteBuffer reply = ByteBuffer.allocate(ControlProtocol.HEADER_SIZE + 5);
+        FrameDecoder decoder = new FrameDecoder();
+
+        while (running) {
+            int length = in.readUnsignedShort();
+            in.readFully(payload, 0, length);
+
+            decoder.beginFrame();
+            ControlProtocol.decode(ByteBuffer.wrap(payload, 0, length), decoder);
+            decoder.endFrame();
+
+            // Pongs go out only after the frame is queued, so round trips include backpressure
+            for (int i = 0; i < decoder.pingCount; i++) {
+                reply.clear();
+                reply.putShort((short) 5).put(ControlProtocol.REPLY_PONG).putInt(decoder.pings[i]);
+                out.write(reply.array(), 0, reply.position());
+            }
+            if (decoder.pingCount > 0) {
+                out.flush();
+            }
+        }
+    }
+
+    private void enqueue(Command command) throws InterruptedException {
+        // Blocks while the executor is behind, which stops this reader from reading further
+        queue.put(command);
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        Command command;
+        while ((command = queue.poll()) != null) {
+            if (!running) return;
+            switch (command.type) {
+                case TYPE_START:
+                    listener.onStartCommand();
+                    break;
+                case TYPE_STOP:
+                    listener.onStopCommand();
+                    break;
+                case TYPE_SET_POSITION:
+                    listener.onSetPositionCommand(command.x, command.y);
+                    break;
+                case TYPE_SET_TRACKING:
+                    listener.onSetTrackingCommand(command.x != 0);
+                    break;
+            }
+        }
+    }
+
+    private static class Command {
+        final int type;
+        final int x;
+        final int y;
+
+        Command(int type, int x, int y) {
+            this.type = type;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Turns one frame into queued commands.
+     */
+    private class FrameDecoder implements ControlProtocol.CommandHandler {
+        private final int[] pings = new int[ControlProtocol.MAX_PAYLOAD_SIZE / 5];
+        private int pingCount;
+        private boolean hasPosition;
+        private int positionX;
+        private int positionY;
+        private InterruptedException interrupted;
+
+        void beginFrame() {
+            pingCount = 0;
+            hasPosition = false;
+            interrupted = null;
+        }
+
+        void endFrame() throws InterruptedException {
+            flushPosition();
+            if (interrupted != null) throw interrupted;
+        }
+
+        @Override
+        public void onStart() {
+            flushPosition();
+            put(new Command(TYPE_START, 0, 0));
+        }
+
+        @Override
+        public void onStop() {
+            flushPosition();
+            put(new Command(TYPE_STOP, 0, 0));
+        }
+
+        @Override
+        public void onSetPosition(int x, int y) {
+            hasPosition = true;
+            positionX = x;
+            positionY = y;
+        }
+
+        @Override
+        public void onSetTracking(boolean enabled) {
+            flushPosition();
+            put(new Command(TYPE_SET_TRACKING, enabled ? 1 : 0, 0));
+        }
+
+        @Override
+        public void onPing(int token) {
+            pings[pingCount++] = token;
+        }
+
+        private void flushPosition() {
+            if (hasPosition) {
+                hasPosition = false;
+                put(new Command(TYPE_SET_POSITION, positionX, positionY));
+            }
+        }
+
+        private void put(Command command) {
+            if (interrupted != null || !running) return;
+            try {
+                enqueue(command);
+            } catch (InterruptedException e) {
+                interrupted = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.wosguides;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary protocol spoken on the local control socket.
+ *
+ * Every frame is a 2-byte big-endian payload length followed by the payload. A payload
+ * holds any number of commands back to back, each an opcode byte plus fixed-size
+ * arguments, so a client can batch many position updates into one write.
+ *
+ * Pure Java so desktop tooling can share it with the app.
+ */
+public final class ControlProtocol {
+    public static final String SOCKET_NAME = "wosguides_control";
+    public static final int HEADER_SIZE = 2;
+    public static final int MAX_PAYLOAD_SIZE = 0xFFFF;
+
+    // Client -> app
+    public static final byte CMD_START = 0x01;
+    public static final byte CMD_STOP = 0x02;
+    public static final byte CMD_SET_POSITION = 0x03; // u16 x, u16 y
+    public static final byte CMD_SET_TRACKING = 0x04; // u8 enabled
+    public static final byte CMD_PING = 0x05;         // i32 token, answered once the frame is queued
+
+    // App -> client
+    public static final byte REPLY_PONG = (byte) 0x80; // i32 token
+
+    private ControlProtocol() {
+    }
+
+    public interface CommandHandler {
+        void onStart();
+
+        void onStop();
+
+        void onSetPosition(int x, int y);
+
+        void onSetTracking(boolean enabled);
+
+        void onPing(int token);
+    }
+
+    /**
+     * Decodes every command in a frame payload, in order.
+     */
+    public static void decode(ByteBuffer payload, CommandHandler handler) throws ProtocolException {
+        while (payload.hasRemaining()) {
+            byte opcode = payload.get();
+            switch (opcode) {
+                case CMD_START:
+                    handler.onStart();
+                    break;
+                case CMD_STOP:
+                    handler.onStop();
+                    break;
+                case CMD_SET_POSITION:
+                    require(payload, 4, opcode);
+                    handler.onSetPosition(payload.getShort() & 0xFFFF, payload.getShort() & 0xFFFF);
+                    break;
+                case CMD_SET_TRACKING:
+                    require(payload, 1, opcode);
+                    handler.onSetTracking(payload.get() != 0);
+                    break;
+                case CMD_PING:
+                    require(payload, 4, opcode);
+                    handler.onPing(payload.getInt());
+                    break;
+                default:
+                    throw new ProtocolException("Unknown opcode 0x" + Integer.toHexString(opcode & 0xFF));
+            }
+        }
+    }
+
+    private static void require(ByteBuffer payload, int size, byte opcode) throws ProtocolException {
+        if (payload.remaining() < size) {
+            throw new ProtocolException("Truncated arguments for opcode 0x" + Integer.toHexString(opcode & 0xFF));
+        }
+    }
+
+    /**
+     * Builds one frame. Reuse it with {@link #reset()} to avoid allocating per frame.
+     */
+    public static class FrameBuilder {
+        private final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + MAX_PAYLOAD_SIZE);
+
+        public FrameBuilder() {
+            reset();
+        }
+
+        public FrameBuilder reset() {
+            buffer.clear();
+            buffer.position(HEADER_SIZE);
+            return this;
+        }
+
+        public int payloadSize() {
+            return buffer.position() - HEADER_SIZE;
+        }
+
+        public FrameBuilder start() {
+            ensure(1).put(CMD_START);
+            return this;
+        }
+
+        public FrameBuilder stop() {
+            ensure(1).put(CMD_STOP);
+            return this;
+        }
+
+        public FrameBuilder setPosition(int x, int y) {
+            if (x < 0 || y < 0 || x > 0xFFFF || y > 0xFFFF) {
+                throw new IllegalArgumentException("Position out of range: " + x + ", " + y);
+            }
+            ensure(5).put(CMD_SET_POSITION).putShort((short) x).putShort((short) y);
+            return this;
+        }
+
+        public FrameBuilder setTracking(boolean enabled) {
+            ensure(2).put(CMD_SET_TRACKING).put((byte) (enabled ? 1 : 0));
+            return this;
+        }
+
+        public FrameBuilder ping(int token) {
+            ensure(5).put(CMD_PING).putInt(token);
+            return this;
+        }
+
+        /**
+         * Writes the header and returns the frame ready to be written to a channel.
+         */
+        public ByteBuffer build() {
+            ByteBuffer frame = buffer.duplicate();
+            frame.flip();
+            frame.putShort(0, (short) payloadSize());
+            return frame;
+        }
+
+        private ByteBuffer ensure(int size) {
+            if (buffer.remaining() < size) {
+                throw new IllegalStateException("Frame is full, send it and start a new one");
+            }
+            return buffer;
+        }
+    }
+}
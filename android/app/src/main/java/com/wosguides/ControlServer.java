@@ -0,0 +1,157 @@
+package com.wosguides;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in control server on an abstract Unix domain socket ({@link ControlProtocol#SOCKET_NAME}).
+ *
+ * Enabled from the "Desktop control socket" switch on the Auto Clicker screen. Desktop
+ * tooling then reaches it with {@code adb forward tcp:PORT localabstract:wosguides_control}.
+ * Framing, queueing and backpressure live in {@link ControlDispatcher}, which drains on the
+ * main thread; this class owns the socket. LocalServerSocket has no selectable channel, so
+ * each client gets a blocking reader thread and the number of clients is capped. Only adb
+ * (shell) and this app are allowed to connect.
+ */
+public class ControlServer {
+    private static final String TAG = "ControlServer";
+    private static final int MAX_CLIENTS = 4;
+    private static final int SHELL_UID = 2000; // android.os.Process.SHELL_UID is not public
+
+    // Own handler: the service clears its click handler wholesale, which would drop a pending drain
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ControlDispatcher.Listener listener;
+    private final List<LocalSocket> clients = new ArrayList<>();
+
+    private LocalServerSocket serverSocket;
+    private ControlDispatcher dispatcher;
+    private Thread acceptThread;
+    private volatile boolean running = false;
+
+    /**
+     * @param listener receives commands on the main thread
+     */
+    public ControlServer(ControlDispatcher.Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void start() throws IOException {
+        if (running) return;
+
+        serverSocket = new LocalServerSocket(ControlProtocol.SOCKET_NAME);
+        // A fresh dispatcher per start, so nothing queued before the last stop() can run
+        dispatcher = new ControlDispatcher(handler::post, listener);
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, TAG);
+        acceptThread.start();
+        Log.i(TAG, "Listening on @" + ControlProtocol.SOCKET_NAME);
+    }
+
+    public void stop() {
+        if (!running) return;
+        running = false;
+
+        // Closing the listening socket does not always unblock accept(), nudge it with a connection
+        try {
+            LocalSocket wake = new LocalSocket();
+            wake.connect(serverSocket.getLocalSocketAddress());
+            wake.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing server socket: " + e.getMessage());
+        }
+        acceptThread.interrupt();
+
+        synchronized (clients) {
+            for (LocalSocket client : clients) {
+                closeQuietly(client);
+            }
+            clients.clear();
+        }
+        handler.removeCallbacksAndMessages(null);
+        dispatcher.close();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            LocalSocket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    Log.e(TAG, "Error accepting connection: " + e.getMessage());
+                }
+                break;
+            }
+            if (!running) {
+                closeQuietly(client);
+                break;
+            }
+
+            try {
+                int uid = client.getPeerCredentials().getUid();
+                if (uid != SHELL_UID && uid != Process.myUid()) {
+                    Log.w(TAG, "Rejected connection from uid " + uid);
+                    closeQuietly(client);
+                    continue;
+                }
+            } catch (IOException e) {
+                closeQuietly(client);
+                continue;
+            }
+
+            synchronized (clients) {
+                if (clients.size() >= MAX_CLIENTS) {
+                    Log.w(TAG, "Rejected connection, " + MAX_CLIENTS + " clients already connected");
+                    closeQuietly(client);
+                    continue;
+                }
+                clients.add(client);
+            }
+            ControlDispatcher connectionDispatcher = dispatcher;
+            new Thread(() -> readLoop(client, connectionDispatcher), TAG + "-client").start();
+        }
+    }
+
+    private void readLoop(LocalSocket client, ControlDispatcher dispatcher) {
+        try {
+            dispatcher.serve(client.getInputStream(), client.getOutputStream());
+        } catch (EOFException e) {
+            // Client disconnected
+        } catch (IOException e) {
+            if (running) {
+                Log.w(TAG, "Closing control connection: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            // Server stopped while this reader waited for the queue
+        } finally {
+            synchronized (clients) {
+                clients.remove(client);
+            }
+            closeQuietly(client);
+        }
+    }
+
+    private static void closeQuietly(LocalSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.wosguides;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * On-disk cache written by {@link GuideSyncWorker}.
+ *
+ * Layout: {@code index.json} holds the validators (ETag / Last-Modified) of the list
+ * requests and the {@code updatedAt}/{@code __v} watermark of every guide, and
+ * {@code guides/<id>.json} holds each guide's raw JSON. Files are replaced atomically
+ * so a reader never sees a partial guide.
+ */
+public class GuideCache {
+    private static final String INDEX_FILE = "index.json";
+    private static final String GUIDES_DIR = "guides";
+
+    private final File root;
+    private final File guidesDir;
+
+    private String language;
+    private Validators guidesList = new Validators(null, null);
+    private Validators categoriesList = new Validators(null, null);
+    private String categoriesDigest;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public GuideCache(File root) {
+        this.root = root;
+        this.guidesDir = new File(root, GUIDES_DIR);
+    }
+
+    public static class Validators {
+        public final String etag;
+        public final String lastModified;
+
+        public Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static class Entry {
+        public final String updatedAt;
+        public final int version;
+        public final Validators validators;
+
+        public Entry(String updatedAt, int version, Validators validators) {
+            this.updatedAt = updatedAt;
+            this.version = version;
+            this.validators = validators;
+        }
+
+        public boolean sameWatermark(String otherUpdatedAt, int otherVersion) {
+            return version == otherVersion && updatedAt != null && updatedAt.equals(otherUpdatedAt);
+        }
+    }
+
+    /**
+     * Loads the index. A missing or unreadable index simply starts an empty cache.
+     *
+     * @return true if a previous index was loaded
+     */
+    public synchronized boolean load() {
+        entries.clear();
+        File indexFile = new File(root, INDEX_FILE);
+        if (!indexFile.exists()) return false;
+
+        try {
+            JSONObject index = new JSONObject(new String(readFile(indexFile), StandardCharsets.UTF_8));
+            language = index.optString("language", null);
+            guidesList = readValidators(index.optJSONObject("guidesList"));
+            categoriesList = readValidators(index.optJSONObject("categoriesList"));
+            categoriesDigest = index.optString("categoriesDigest", null);
+
+            JSONObject guides = index.optJSONObject("guides");
+            if (guides != null) {
+                for (Iterator<String> it = guides.keys(); it.hasNext(); ) {
+                    String id = it.next();
+                    JSONObject entry = guides.getJSONObject(id);
+                    entries.put(id, new Entry(
+                            entry.optString("updatedAt", null),
+                            entry.optInt("v", 0),
+                            readValidators(entry)));
+                }
+            }
+            return true;
+        } catch (IOException | JSONException e) {
+            entries.clear();
+            guidesList = new Validators(null, null);
+            categoriesList = new Validators(null, null);
+            categoriesDigest = null;
+            return false;
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        try {
+            JSONObject index = new JSONObject();
+            index.put("language", language);
+            index.put("guidesList", writeValidators(new JSONObject(), guidesList));
+            index.put("categoriesList", writeValidators(new JSONObject(), categoriesList));
+            index.put("categoriesDigest", categoriesDigest);
+
+            JSONObject guides = new JSONObject();
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                JSONObject entry = new JSONObject();
+                entry.put("updatedAt", e.getValue().updatedAt);
+                entry.put("v", e.getValue().version);
+                writeValidators(entry, e.getValue().validators);
+                guides.put(e.getKey(), entry);
+            }
+            index.put("guides", guides);
+
+            writeFileAtomically(new File(root, INDEX_FILE), index.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Could not serialize cache index", e);
+        }
+    }
+
+    /**
+     * Drops everything if the cache was filled for another language, since the API
+     * localizes responses through the Language header.
+     *
+     * @return true if the cache was dropped
+     */
+    public synchronized boolean useLanguage(String newLanguage) {
+        if (newLanguage != null && !newLanguage.equals(language)) {
+            clear();
+            language = newLanguage;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        guidesList = new Validators(null, null);
+        categoriesList = new Validators(null, null);
+        categoriesDigest = null;
+        File[] files = guidesDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public synchronized Validators getGuidesListValidators() {
+        return guidesList;
+    }
+
+    public synchronized void setGuidesListValidators(Validators validators) {
+        guidesList = validators;
+    }
+
+    public synchronized Validators getCategoriesListValidators() {
+        return categoriesList;
+    }
+
+    public synchronized void setCategoriesListValidators(Validators validators) {
+        categoriesList = validators;
+    }
+
+    public synchronized String getCategoriesDigest() {
+        return categoriesDigest;
+    }
+
+    public synchronized void setCategoriesDigest(String digest) {
+        categoriesDigest = digest;
+    }
+
+    public synchronized Map<String, Entry> getEntries() {
+        return new HashMap<>(entries);
+    }
+
+    public synchronized Entry getEntry(String id) {
+        return entries.get(id);
+    }
+
+    public void putGuide(String id, Entry entry, byte[] json) throws IOException {
+        // Written outside the lock so parallel downloads don't queue behind each other
+        writeFileAtomically(guideFile(id), json);
+        synchronized (this) {
+            entries.put(id, entry);
+        }
+    }
+
+    public synchronized void putEntry(String id, Entry entry) {
+        entries.put(id, entry);
+    }
+
+    public synchronized void removeGuide(String id) {
+        entries.remove(id);
+        guideFile(id).delete();
+    }
+
+    /**
+     * @return the guide's raw JSON, or null if it is not cached
+     */
+    public String readGuide(String id) throws IOException {
+        File file = guideFile(id);
+        if (!file.exists()) return null;
+        return new String(readFile(file), StandardCharsets.UTF_8);
+    }
+
+    private File guideFile(String id) {
+        // Ids are Mongo ObjectIds, but never let one escape the cache directory
+        if (!id.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Invalid guide id: " + id);
+        }
+        return new File(guidesDir, id + ".json");
+    }
+
+    private static Validators readValidators(JSONObject json) {
+        if (json == null) return new Validators(null, null);
+        return new Validators(json.optString("etag", null), json.optString("lastModified", null));
+    }
+
+    private static JSONObject writeValidators(JSONObject json, Validators validators) throws JSONException {
+        json.put("etag", validators.etag);
+        json.put("lastModified", validators.lastModified);
+        return json;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return GuideSyncWorker.readFully(in);
+        }
+    }
+
+    private static void writeFileAtomically(File file, byte[] data) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.wosguides;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GuideSyncModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "GuideSyncModule";
+    private static final String CACHE_DIR = "guide_cache";
+
+    private final GuideCache cache;
+    // One sync at a time, off the JS thread
+    private final ExecutorService syncExecutor = Executors.newSingleThreadExecutor();
+
+    public GuideSyncModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        cache = new GuideCache(new File(reactContext.getFilesDir(), CACHE_DIR));
+    }
+
+    @NonNull
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void sync(String language, Promise promise) {
+        syncExecutor.execute(() -> {
+            try {
+                GuideSyncWorker worker = new GuideSyncWorker(BuildConfig.API_BASE_URL, cache, language);
+                GuideSyncWorker.Result result = worker.sync();
+
+                WritableMap map = Arguments.createMap();
+                map.putArray("changedGuideIds", Arguments.fromList(result.changedGuideIds));
+                map.putArray("removedGuideIds", Arguments.fromList(result.removedGuideIds));
+                map.putBoolean("categoriesChanged", result.categoriesChanged);
+                map.putBoolean("fullRefresh", result.fullRefresh);
+                promise.resolve(map);
+            } catch (Exception e) {
+                promise.reject("SYNC_FAILED", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Resolves with the cached raw JSON of each guide, in order, or null where a guide is missing.
+     */
+    @ReactMethod
+    public void readGuides(ReadableArray ids, Promise promise) {
+        syncExecutor.execute(() -> {
+            try {
+                WritableArray guides = Arguments.createArray();
+                for (int i = 0; i < ids.size(); i++) {
+                    String json = cache.readGuide(ids.getString(i));
+                    if (json != null) {
+                        guides.pushString(json);
+                    } else {
+                        guides.pushNull();
+                    }
+                }
+                promise.resolve(guides);
+            } catch (IOException | IllegalArgumentException e) {
+                promise.reject("ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        syncExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,312 @@
+package com.wosguides;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Brings {@link GuideCache} up to date with the API and works out which guides changed.
+ *
+ * The guide and category lists are fetched with If-None-Match / If-Modified-Since and gzip,
+ * so an unchanged catalog costs two 304s. The API has no way to filter {@code /guides}, so
+ * any change to the list still transfers the whole list; when list items carry
+ * {@code htmlContent} that is the whole catalog. The {@code updatedAt}/{@code __v}
+ * watermarks then limit everything after the transfer: only changed guides are written
+ * and reported to JS, and only changed guides missing {@code htmlContent} are downloaded
+ * individually, with bounded parallelism and their own conditional headers.
+ *
+ * Without an index to compare against (first run, or a language switch) the sync only
+ * records watermarks and reports {@link Result#fullRefresh}, since every guide would
+ * count as changed.
+ */
+public class GuideSyncWorker {
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int TIMEOUT = 10000; // Same as API_CONFIG.TIMEOUT on the JS side
+
+    private final String baseUrl;
+    private final GuideCache cache;
+    private final String language;
+    private final int parallelism;
+
+    public GuideSyncWorker(String baseUrl, GuideCache cache, String language) {
+        this(baseUrl, cache, language, DEFAULT_PARALLELISM);
+    }
+
+    public GuideSyncWorker(String baseUrl, GuideCache cache, String language, int parallelism) {
+        this.baseUrl = baseUrl;
+        this.cache = cache;
+        this.language = language;
+        this.parallelism = parallelism;
+    }
+
+    public static class Result {
+        public final List<String> changedGuideIds;
+        public final List<String> removedGuideIds;
+        public final boolean categoriesChanged;
+        // No previous index to diff against, the caller should refresh everything once
+        public final boolean fullRefresh;
+
+        Result(List<String> changedGuideIds, List<String> removedGuideIds, boolean categoriesChanged,
+               boolean fullRefresh) {
+            this.changedGuideIds = changedGuideIds;
+            this.removedGuideIds = removedGuideIds;
+            this.categoriesChanged = categoriesChanged;
+            this.fullRefresh = fullRefresh;
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final byte[] body;
+        final GuideCache.Validators validators;
+
+        Response(int status, byte[] body, GuideCache.Validators validators) {
+            this.status = status;
+            this.body = body;
+            this.validators = validators;
+        }
+    }
+
+    public Result sync() throws IOException {
+        boolean hadIndex = cache.load();
+        boolean languageChanged = cache.useLanguage(language);
+        boolean fullRefresh = !hadIndex || languageChanged;
+
+        boolean categoriesChanged = syncCategories();
+
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        syncGuides(changed, removed, fullRefresh);
+
+        cache.save();
+        if (fullRefresh) {
+            return new Result(Collections.emptyList(), Collections.emptyList(), true, true);
+        }
+        return new Result(changed, removed, categoriesChanged, false);
+    }
+
+    private boolean syncCategories() throws IOException {
+        Response response = get("/categories", cache.getCategoriesListValidators());
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return false;
+        }
+
+        // Servers without validators still answer 200, so compare the body too
+        String digest = digest(response.body);
+        boolean changed = !digest.equals(cache.getCategoriesDigest());
+        cache.setCategoriesDigest(digest);
+        cache.setCategoriesListValidators(response.validators);
+        return changed;
+    }
+
+    private void syncGuides(List<String> changed, List<String> removed, boolean recordOnly) throws IOException {
+        Response response = get("/guides", cache.getGuidesListValidators());
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            return;
+        }
+
+        JSONArray guides;
+        try {
+            guides = (JSONArray) unwrap(response.body);
+        } catch (JSONException | ClassCastException e) {
+            throw new IOException("Unexpected guide list response", e);
+        }
+
+        Map<String, GuideCache.Entry> known = cache.getEntries();
+        Set<String> seen = new HashSet<>();
+        List<JSONObject> toDownload = new ArrayList<>();
+
+        for (int i = 0; i < guides.length(); i++) {
+            JSONObject guide = guides.optJSONObject(i);
+            if (guide == null) continue;
+            String id = guide.optString("_id", null);
+            if (id == null) continue;
+            seen.add(id);
+
+            String updatedAt = guide.optString("updatedAt", null);
+            int version = guide.optInt("__v", 0);
+            if (recordOnly) {
+                // Content is fetched the first time a guide changes after this
+                cache.putEntry(id, new GuideCache.Entry(updatedAt, version, new GuideCache.Validators(null, null)));
+                continue;
+            }
+
+            GuideCache.Entry entry = known.get(id);
+            if (entry != null && entry.sameWatermark(updatedAt, version)) continue;
+
+            if (guide.has("htmlContent")) {
+                // The list already carries the full guide, no second request needed
+                GuideCache.Validators validators = entry != null ? entry.validators : new GuideCache.Validators(null, null);
+                cache.putGuide(id, new GuideCache.Entry(updatedAt, version, validators),
+                        guide.toString().getBytes(StandardCharsets.UTF_8));
+                changed.add(id);
+            } else {
+                toDownload.add(guide);
+            }
+        }
+
+        changed.addAll(downloadGuides(toDownload));
+
+        for (String id : known.keySet()) {
+            if (!seen.contains(id)) {
+                cache.removeGuide(id);
+                removed.add(id);
+            }
+        }
+
+        // Only remember the list validators once every guide it describes is stored
+        cache.setGuidesListValidators(response.validators);
+    }
+
+    private List<String> downloadGuides(List<JSONObject> guides) throws IOException {
+        if (guides.isEmpty()) return Collections.emptyList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, guides.size()));
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (JSONObject guide : guides) {
+                futures.add(executor.submit(() -> downloadGuide(guide)));
+            }
+
+            List<String> changed = new ArrayList<>();
+            for (Future<String> future : futures) {
+                String id = future.get();
+                if (id != null) changed.add(id);
+            }
+            return changed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Guide sync interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the guide id if its content changed, null if the server confirmed the cached copy
+     */
+    private String downloadGuide(JSONObject summary) throws IOException {
+        String id = summary.optString("_id");
+        String updatedAt = summary.optString("updatedAt", null);
+        int version = summary.optInt("__v", 0);
+
+        GuideCache.Entry cached = cache.getEntry(id);
+        GuideCache.Validators validators = cached != null ? cached.validators : new GuideCache.Validators(null, null);
+        Response response = get("/guides/" + id, validators);
+
+        if (response.status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            cache.putEntry(id, new GuideCache.Entry(updatedAt, version, validators));
+            return null;
+        }
+
+        try {
+            Object guide = unwrap(response.body);
+            cache.putGuide(id, new GuideCache.Entry(updatedAt, version, response.validators),
+                    guide.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            throw new IOException("Unexpected response for guide " + id, e);
+        }
+        return id;
+    }
+
+    private Response get(String path, GuideCache.Validators validators) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setRequestProperty("Accept", "application/json");
+            // Asking explicitly disables transparent decompression, so the body is gunzipped below
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (language != null) {
+                connection.setRequestProperty("Language", language);
+            }
+            if (validators.etag != null) {
+                connection.setRequestProperty("If-None-Match", validators.etag);
+            }
+            if (validators.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", validators.lastModified);
+            }
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return new Response(status, null, validators);
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP error! status: " + status + " for " + path);
+            }
+
+            InputStream in = connection.getInputStream();
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                in = new GZIPInputStream(in);
+            }
+            byte[] body;
+            try {
+                body = readFully(in);
+            } finally {
+                in.close();
+            }
+            return new Response(status, body, new GuideCache.Validators(
+                    connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified")));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * The API wraps payloads as { success, count, data }, fall back to the bare value like the JS client does.
+     */
+    private static Object unwrap(byte[] body) throws JSONException {
+        String text = new String(body, StandardCharsets.UTF_8).trim();
+        if (text.startsWith("[")) {
+            return new JSONArray(text);
+        }
+        JSONObject json = new JSONObject(text);
+        return json.has("data") ? json.get("data") : json;
+    }
+
+    private static String digest(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
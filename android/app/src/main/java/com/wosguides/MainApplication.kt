@@ -22,6 +22,7 @@ class MainApplication : Application(), ReactApplication {
               add(AutoClickerPackage())
               add(ReactNativeOneSignalPackage())
               add(ConfigPackage())
+              add(GuideSyncPackage())
             }
 
         override fun getJSMainModuleName(): String = "index"
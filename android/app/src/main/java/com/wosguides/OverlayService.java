@@ -37,18 +37,33 @@ public class OverlayService extends Service {
     private WindowManager.LayoutParams targetParams;
 
     private boolean isClicking = false;
+    private boolean isTracking = false;
 
     // For target dragging
     private int targetX = 525;  // Default position (will be adjusted for screen density)
     private int targetY = 525;
     private int containerCenterOffsetPx; // Offset to get from top-left to center of container in pixels
 
-    // Broadcast receiver for click feedback
+    // Broadcast receiver for click feedback and tracking updates
     private BroadcastReceiver clickReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
-            if (AutoClickerService.ACTION_CLICK_PERFORMED.equals(intent.getAction())) {
+            String action = intent.getAction();
+            if (AutoClickerService.ACTION_CLICK_PERFORMED.equals(action)) {
                 animateClickFeedback();
+            } else if (AutoClickerService.ACTION_START_CLICKING.equals(action)
+                    || AutoClickerService.ACTION_STOP_CLICKING.equals(action)) {
+                // Clicking can also be started or stopped from outside the overlay (control socket)
+                isClicking = AutoClickerService.ACTION_START_CLICKING.equals(action);
+                updateButtonText();
+                updateTargetVisibility();
+            } else if (AutoClickerService.ACTION_SET_TRACKING.equals(action)) {
+                isTracking = intent.getBooleanExtra("enabled", false);
+                updateTargetVisibility();
+            } else if (AutoClickerService.ACTION_TARGET_TRACKED.equals(action)
+                    || AutoClickerService.ACTION_SET_CLICK_POSITION.equals(action)) {
+                // Tracked positions and positions set over the control socket; drags here echo back as no-ops
+                moveTargetTo(intent.getIntExtra("x", targetX), intent.getIntExtra("y", targetY));
             }
         }
     };
@@ -67,11 +82,17 @@ public class OverlayService extends Service {
         float density = getResources().getDisplayMetrics().density;
         containerCenterOffsetPx = (int) (25 * density); // 25dp converted to pixels
 
+        isTracking = AutoClickerService.isTrackingRequested();
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
         createOverlayView();
 
         // Register receiver for click feedback
         IntentFilter filter = new IntentFilter(AutoClickerService.ACTION_CLICK_PERFORMED);
+        filter.addAction(AutoClickerService.ACTION_START_CLICKING);
+        filter.addAction(AutoClickerService.ACTION_STOP_CLICKING);
+        filter.addAction(AutoClickerService.ACTION_SET_TRACKING);
+        filter.addAction(AutoClickerService.ACTION_TARGET_TRACKED);
+        filter.addAction(AutoClickerService.ACTION_SET_CLICK_POSITION);
         LocalBroadcastManager.getInstance(this).registerReceiver(clickReceiver, filter);
     }
 
@@ -93,6 +114,7 @@ public class OverlayService extends Service {
         startStopButton.setOnClickListener(v -> {
             isClicking = !isClicking;
             updateButtonText();
+            updateTargetVisibility();
 
             if (isClicking) {
                 updateClickPosition();
@@ -229,6 +251,24 @@ public class OverlayService extends Service {
         }
     }
 
+    private void updateTargetVisibility() {
+        if (targetContainer != null) {
+            // While tracking, the target would show up in the screenshots and hide what it follows
+            targetContainer.setVisibility(isClicking && isTracking ? View.INVISIBLE : View.VISIBLE);
+        }
+    }
+
+    private void moveTargetTo(int x, int y) {
+        if (targetContainer == null || (x == targetX && y == targetY)) return;
+
+        // Follow the tracked position without echoing it back as a new click position
+        targetX = x;
+        targetY = y;
+        targetParams.x = x - containerCenterOffsetPx;
+        targetParams.y = y - containerCenterOffsetPx;
+        windowManager.updateViewLayout(targetContainer, targetParams);
+    }
+
     private void updateClickPosition() {
         try {
             // Click position is the center of the visual target
@@ -0,0 +1,320 @@
+package com.wosguides;
+
+/**
+ * Follows a small on-screen target (event icon, map marker, ...) from frame to frame.
+ *
+ * Pure Java over 8-bit luminance so it can run on the JVM without Android classes.
+ * Each update predicts the next position from the last velocity and the time since the
+ * last frame (frames are not evenly spaced: screenshots are rate limited and can fail),
+ * searches a 2x downsampled window around the prediction, then refines at full resolution.
+ * Only the search window is ever read, never the full frame.
+ */
+public class TargetTracker {
+    private static final int DEFAULT_PATCH_RADIUS = 24;
+    private static final int DEFAULT_SEARCH_RADIUS = 48;
+    private static final int DEFAULT_MAX_MEAN_ERROR = 28; // Mean absolute luma difference per pixel
+    private static final int REFINE_RADIUS = 2;
+    private static final long MAX_PREDICTION_MILLIS = 2000; // Beyond this, extrapolating does more harm than good
+
+    private final int patchRadius;
+    private final int patchSize;
+    private final int coarsePatchSize;
+    private final int searchRadius;
+    private final int maxMeanError;
+
+    private final int[] patch;
+    private final int[] coarsePatch;
+
+    // Scratch buffer for the downsampled search window, grown on demand
+    private int[] coarseWindow = new int[0];
+
+    private boolean seeded = false;
+    private int x;
+    private int y;
+    private long frameTime; // Time of the last seed or update, in milliseconds
+    private float velocityX; // Pixels per millisecond
+    private float velocityY;
+
+    public TargetTracker() {
+        this(DEFAULT_PATCH_RADIUS, DEFAULT_SEARCH_RADIUS, DEFAULT_MAX_MEAN_ERROR);
+    }
+
+    public TargetTracker(int patchRadius, int searchRadius, int maxMeanError) {
+        if (patchRadius < 2 || searchRadius < 2) {
+            throw new IllegalArgumentException("Patch and search radius must be at least 2");
+        }
+        this.patchRadius = patchRadius;
+        this.patchSize = patchRadius * 2;
+        this.coarsePatchSize = patchRadius;
+        this.searchRadius = searchRadius;
+        this.maxMeanError = maxMeanError;
+        this.patch = new int[patchSize * patchSize];
+        this.coarsePatch = new int[coarsePatchSize * coarsePatchSize];
+    }
+
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void reset() {
+        seeded = false;
+        velocityX = 0;
+        velocityY = 0;
+    }
+
+    /**
+     * Screen-space rectangle {left, top, right, bottom} (right/bottom exclusive) that a call to
+     * {@link #update} with the same time needs. Callers only have to convert this region to luma.
+     *
+     * @param timeMillis when the next frame was captured, on the clock passed to {@link #seed}
+     */
+    public int[] getSearchBounds(long timeMillis) {
+        int reach = searchRadius + patchRadius + REFINE_RADIUS;
+        int predictedX = predictX(timeMillis);
+        int predictedY = predictY(timeMillis);
+        return new int[] {
+            predictedX - reach, predictedY - reach,
+            predictedX + reach, predictedY + reach
+        };
+    }
+
+    /**
+     * Screen-space rectangle needed by {@link #seed} for a target centred on (centerX, centerY).
+     */
+    public int[] getSeedBounds(int centerX, int centerY) {
+        return new int[] {
+            centerX - patchRadius, centerY - patchRadius,
+            centerX + patchRadius, centerY + patchRadius
+        };
+    }
+
+    /**
+     * Captures the reference patch centred on (centerX, centerY).
+     *
+     * @param luma    luminance of a region of the screen, row-major
+     * @param originX screen x of luma[0]
+     * @param originY screen y of luma[0]
+     * @param timeMillis when the frame was captured, on any monotonic clock
+     * @return false if the patch does not fit entirely inside the region
+     */
+    public boolean seed(byte[] luma, int originX, int originY, int width, int height,
+                        int centerX, int centerY, long timeMillis) {
+        int left = centerX - patchRadius - originX;
+        int top = centerY - patchRadius - originY;
+        if (left < 0 || top < 0 || left + patchSize > width || top + patchSize > height) {
+            return false;
+        }
+
+        for (int row = 0; row < patchSize; row++) {
+            int src = (top + row) * width + left;
+            int dst = row * patchSize;
+            for (int col = 0; col < patchSize; col++) {
+                patch[dst + col] = luma[src + col] & 0xFF;
+            }
+        }
+        downsample(patch, patchSize, patchSize, coarsePatch, coarsePatchSize, coarsePatchSize);
+
+        x = centerX;
+        y = centerY;
+        frameTime = timeMillis;
+        velocityX = 0;
+        velocityY = 0;
+        seeded = true;
+        return true;
+    }
+
+    /**
+     * Locates the target in a new frame.
+     *
+     * @param luma    luminance of a region of the screen, row-major, ideally {@link #getSearchBounds(long)}
+     * @param originX screen x of luma[0]
+     * @param originY screen y of luma[0]
+     * @param timeMillis when the frame was captured, on the clock passed to {@link #seed}
+     * @return true if the target was found; otherwise the last position is kept
+     */
+    public boolean update(byte[] luma, int originX, int originY, int width, int height, long timeMillis) {
+        if (!seeded) return false;
+
+        int predictedX = predictX(timeMillis);
+        int predictedY = predictY(timeMillis);
+
+        // Coarse pass: align the window to even coordinates so 2x2 blocks match the patch grid
+        int alignedX = originX + (originX & 1);
+        int alignedY = originY + (originY & 1);
+        int offsetX = alignedX - originX;
+        int offsetY = alignedY - originY;
+        int coarseWidth = (width - offsetX) / 2;
+        int coarseHeight = (height - offsetY) / 2;
+        if (coarseWidth < coarsePatchSize || coarseHeight < coarsePatchSize) {
+            return lost();
+        }
+        if (coarseWindow.length < coarseWidth * coarseHeight) {
+            coarseWindow = new int[coarseWidth * coarseHeight];
+        }
+        downsampleLuma(luma, width, offsetX, offsetY, coarseWindow, coarseWidth, coarseHeight);
+
+        // Coarse search over top-left patch corners, in coarse-window coordinates
+        int coarseRadius = (searchRadius + 1) / 2;
+        int predictedLeft = ((predictedX - patchRadius) - alignedX) / 2;
+        int predictedTop = ((predictedY - patchRadius) - alignedY) / 2;
+        int minLeft = Math.max(0, predictedLeft - coarseRadius);
+        int maxLeft = Math.min(coarseWidth - coarsePatchSize, predictedLeft + coarseRadius);
+        int minTop = Math.max(0, predictedTop - coarseRadius);
+        int maxTop = Math.min(coarseHeight - coarsePatchSize, predictedTop + coarseRadius);
+        if (minLeft > maxLeft || minTop > maxTop) {
+            return lost();
+        }
+
+        int bestCoarseLeft = -1;
+        int bestCoarseTop = -1;
+        int bestCoarseSad = Integer.MAX_VALUE;
+        for (int top = minTop; top <= maxTop; top++) {
+            for (int left = minLeft; left <= maxLeft; left++) {
+                int sad = sad(coarseWindow, coarseWidth, left, top,
+                        coarsePatch, coarsePatchSize, bestCoarseSad);
+                // Ties go to the candidate nearest the prediction (early exits never tie, see sad())
+                if (sad < bestCoarseSad || (sad == bestCoarseSad
+                        && distance(left, top, predictedLeft, predictedTop)
+                        < distance(bestCoarseLeft, bestCoarseTop, predictedLeft, predictedTop))) {
+                    bestCoarseSad = sad;
+                    bestCoarseLeft = left;
+                    bestCoarseTop = top;
+                }
+            }
+        }
+
+        // Fine pass: refine around the coarse hit at full resolution
+        int coarseHitLeft = offsetX + bestCoarseLeft * 2;
+        int coarseHitTop = offsetY + bestCoarseTop * 2;
+        int bestLeft = -1;
+        int bestTop = -1;
+        int bestSad = Integer.MAX_VALUE;
+        for (int top = coarseHitTop - REFINE_RADIUS; top <= coarseHitTop + REFINE_RADIUS; top++) {
+            if (top < 0 || top + patchSize > height) continue;
+            for (int left = coarseHitLeft - REFINE_RADIUS; left <= coarseHitLeft + REFINE_RADIUS; left++) {
+                if (left < 0 || left + patchSize > width) continue;
+                int sad = sadLuma(luma, width, left, top, bestSad);
+                if (sad < bestSad) {
+                    bestSad = sad;
+                    bestLeft = left;
+                    bestTop = top;
+                }
+            }
+        }
+
+        if (bestLeft < 0 || bestSad > maxMeanError * patch.length) {
+            return lost();
+        }
+
+        int newX = originX + bestLeft + patchRadius;
+        int newY = originY + bestTop + patchRadius;
+        long elapsed = timeMillis - frameTime;
+        if (elapsed > 0) {
+            velocityX = (newX - x) / (float) elapsed;
+            velocityY = (newY - y) / (float) elapsed;
+        }
+        x = newX;
+        y = newY;
+        frameTime = timeMillis;
+        return true;
+    }
+
+    /**
+     * Converts ARGB_8888 pixels to 8-bit luminance (BT.601 weights).
+     */
+    public static void argbToLuma(int[] argb, byte[] luma, int count) {
+        for (int i = 0; i < count; i++) {
+            int pixel = argb[i];
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            luma[i] = (byte) ((r * 77 + g * 150 + b * 29) >> 8);
+        }
+    }
+
+    private int predictX(long timeMillis) {
+        return x + Math.round(velocityX * predictionMillis(timeMillis));
+    }
+
+    private int predictY(long timeMillis) {
+        return y + Math.round(velocityY * predictionMillis(timeMillis));
+    }
+
+    private long predictionMillis(long timeMillis) {
+        return Math.max(0, Math.min(MAX_PREDICTION_MILLIS, timeMillis - frameTime));
+    }
+
+    private boolean lost() {
+        // Stop extrapolating so the next search is centred on the last confirmed position
+        velocityX = 0;
+        velocityY = 0;
+        return false;
+    }
+
+    private int sadLuma(byte[] luma, int width, int left, int top, int limit) {
+        int sum = 0;
+        for (int row = 0; row < patchSize; row++) {
+            int src = (top + row) * width + left;
+            int ref = row * patchSize;
+            for (int col = 0; col < patchSize; col++) {
+                sum += Math.abs((luma[src + col] & 0xFF) - patch[ref + col]);
+            }
+            // Early exit once this candidate cannot beat or tie the current best. A candidate
+            // that stops here returns more than the limit, so only complete sums can tie
+            if (sum > limit) return sum;
+        }
+        return sum;
+    }
+
+    private static int sad(int[] window, int width, int left, int top,
+                           int[] reference, int size, int limit) {
+        int sum = 0;
+        for (int row = 0; row < size; row++) {
+            int src = (top + row) * width + left;
+            int ref = row * size;
+            for (int col = 0; col < size; col++) {
+                sum += Math.abs(window[src + col] - reference[ref + col]);
+            }
+            if (sum > limit) return sum;
+        }
+        return sum;
+    }
+
+    private static int distance(int x0, int y0, int x1, int y1) {
+        return Math.abs(x0 - x1) + Math.abs(y0 - y1);
+    }
+
+    private static void downsample(int[] src, int srcWidth, int srcHeight,
+                                   int[] dst, int dstWidth, int dstHeight) {
+        for (int row = 0; row < dstHeight; row++) {
+            int top = row * 2 * srcWidth;
+            int bottom = top + srcWidth;
+            for (int col = 0; col < dstWidth; col++) {
+                int c = col * 2;
+                dst[row * dstWidth + col] =
+                        (src[top + c] + src[top + c + 1] + src[bottom + c] + src[bottom + c + 1]) >> 2;
+            }
+        }
+    }
+
+    private static void downsampleLuma(byte[] src, int srcWidth, int offsetX, int offsetY,
+                                       int[] dst, int dstWidth, int dstHeight) {
+        for (int row = 0; row < dstHeight; row++) {
+            int top = (offsetY + row * 2) * srcWidth + offsetX;
+            int bottom = top + srcWidth;
+            for (int col = 0; col < dstWidth; col++) {
+                int c = col * 2;
+                dst[row * dstWidth + col] = ((src[top + c] & 0xFF) + (src[top + c + 1] & 0xFF)
+                        + (src[bottom + c] & 0xFF) + (src[bottom + c + 1] & 0xFF)) >> 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.wosguides;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Plain JVM client for the control socket. It lives with the tests so it stays out of the
+ * APK; it depends only on {@link ControlProtocol}, so desktop tooling can copy both files.
+ *
+ * Forward the socket first with {@code adb forward tcp:PORT localabstract:wosguides_control},
+ * then connect to localhost:PORT. Build frames with {@link #frame()} and send them with
+ * {@link #send()}; a full socket buffer blocks the sender, which is how server backpressure
+ * reaches the caller.
+ */
+public class ControlClient implements Closeable {
+    private final SocketChannel channel;
+    private final ControlProtocol.FrameBuilder frame = new ControlProtocol.FrameBuilder();
+    private final ByteBuffer reply = ByteBuffer.allocate(ControlProtocol.HEADER_SIZE + 5);
+    private int nextToken = 0;
+
+    public ControlClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * The pending frame. Add commands to it, then call {@link #send()}.
+     */
+    public ControlProtocol.FrameBuilder frame() {
+        return frame;
+    }
+
+    public void send() throws IOException {
+        ByteBuffer buffer = frame.build();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        frame.reset();
+    }
+
+    public void start() throws IOException {
+        frame.start();
+        send();
+    }
+
+    public void stop() throws IOException {
+        frame.stop();
+        send();
+    }
+
+    public void setPosition(int x, int y) throws IOException {
+        frame.setPosition(x, y);
+        send();
+    }
+
+    /**
+     * Sends a ping after anything already added to the pending frame and waits for the app
+     * to queue that frame.
+     *
+     * @return round trip time in nanoseconds
+     */
+    public long ping() throws IOException {
+        int token = nextToken++;
+        long startedAt = System.nanoTime();
+        frame.ping(token);
+        send();
+
+        while (true) {
+            reply.clear();
+            while (reply.hasRemaining()) {
+                if (channel.read(reply) < 0) {
+                    throw new EOFException("Control socket closed");
+                }
+            }
+            reply.flip();
+            int length = reply.getShort() & 0xFFFF;
+            byte type = reply.get();
+            int replyToken = reply.getInt();
+            if (length != 5 || type != ControlProtocol.REPLY_PONG) {
+                throw new ProtocolException("Unexpected reply 0x" + Integer.toHexString(type & 0xFF));
+            }
+            // Pongs arrive in order, skip any left over from earlier pings
+            if (replyToken == token) {
+                return System.nanoTime() - startedAt;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,340 @@
+package com.wosguides;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Throughput and latency harness for the control socket.
+ *
+ * {@link ControlClient} talks over loopback TCP to the same {@link ControlDispatcher} that
+ * ControlServer runs; only the socket differs, since LocalServerSocket needs Android. A
+ * single-thread executor stands in for the main thread, and it is slowed down in one test
+ * to check that backpressure reaches the client.
+ */
+public class ControlThroughputTest {
+    private LoopbackServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LoopbackServer();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void batchedPositionThroughput() throws Exception {
+        int frames = 20000;
+        int updatesPerFrame = 50;
+
+        try (ControlClient client = new ControlClient("127.0.0.1", server.port())) {
+            client.start();
+            long started = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                for (int j = 0; j < updatesPerFrame; j++) {
+                    client.frame().setPosition(i % 1080, j);
+                }
+                client.send();
+            }
+            // Wait for the last frame to be queued, then for the main thread to catch up
+            client.ping();
+            long elapsed = System.nanoTime() - started;
+            server.awaitDrained();
+
+            double seconds = elapsed / 1e9;
+            System.out.printf("Control socket: %.0f frames/s, %.0f position updates/s%n",
+                    frames / seconds, frames * (double) updatesPerFrame / seconds);
+
+            // Each frame's run of updates reaches the listener as its last position
+            assertEquals(frames, server.positions.get());
+            assertEquals(((frames - 1) % 1080) << 16 | (updatesPerFrame - 1), server.lastPosition.get());
+            assertEquals(1, server.starts.get());
+        }
+    }
+
+    @Test
+    public void pingLatencyPercentiles() throws Exception {
+        int pings = 5000;
+        long[] rtts = new long[pings];
+
+        try (ControlClient client = new ControlClient("127.0.0.1", server.port())) {
+            for (int i = 0; i < 200; i++) {
+                client.ping();
+            }
+            for (int i = 0; i < pings; i++) {
+                // A typical frame: a handful of updates followed by a ping
+                for (int j = 0; j < 8; j++) {
+                    client.frame().setPosition(500 + j, 500);
+                }
+                rtts[i] = client.ping();
+            }
+        }
+
+        Arrays.sort(rtts);
+        System.out.printf("Control socket RTT: p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us%n",
+                percentile(rtts, 50), percentile(rtts, 90), percentile(rtts, 99), rtts[pings - 1] / 1000.0);
+        assertTrue(percentile(rtts, 50) > 0);
+    }
+
+    @Test
+    public void slowConsumerAppliesBackpressure() throws Exception {
+        server.commandDelayNanos = TimeUnit.MICROSECONDS.toNanos(200);
+        int frames = 2000;
+
+        try (ControlClient client = new ControlClient("127.0.0.1", server.port())) {
+            for (int i = 0; i < frames; i++) {
+                client.frame().setPosition(i, i).stop();
+                client.send();
+            }
+            client.ping();
+            // The pong only comes back once the last command is queued, so the reader (and the
+            // client behind it) waited until all but a queue's worth had been handled
+            int handled = server.positions.get() + server.stops.get();
+            assertTrue("handled " + handled, handled >= 2 * frames - ControlDispatcher.QUEUE_CAPACITY - 1);
+            server.awaitDrained();
+            assertEquals(frames, server.stops.get());
+            assertEquals(frames, server.positions.get());
+        }
+    }
+
+    @Test
+    public void keepsCommandOrderAroundCoalescedPositions() throws Exception {
+        try (ControlClient client = new ControlClient("127.0.0.1", server.port())) {
+            client.frame().setPosition(1, 1).setPosition(2, 2).start().setPosition(3, 3).setTracking(true)
+                    .setPosition(4, 4).setPosition(5, 5).stop();
+            client.ping();
+            server.awaitDrained();
+        }
+        assertEquals(Arrays.asList("position 2,2", "start", "position 3,3", "tracking true", "position 5,5", "stop"),
+                server.log);
+    }
+
+    @Test
+    public void closeReleasesReaderBlockedOnFullQueue() throws Exception {
+        // Drains are never run, so the reader fills the queue and blocks part way through the frame
+        List<Runnable> pendingDrains = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger delivered = new AtomicInteger();
+        ControlDispatcher dispatcher = new ControlDispatcher(pendingDrains::add, new ControlDispatcher.Listener() {
+            @Override
+            public void onStartCommand() {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onStopCommand() {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onSetPositionCommand(int x, int y) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onSetTrackingCommand(boolean enabled) {
+                delivered.incrementAndGet();
+            }
+        });
+
+        ControlProtocol.FrameBuilder frame = new ControlProtocol.FrameBuilder();
+        for (int i = 0; i < 2000; i++) {
+            frame.stop();
+        }
+        ByteBuffer bytes = frame.build();
+        InputStream in = new ByteArrayInputStream(bytes.array(), 0, bytes.limit());
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                dispatcher.serve(in, new ByteArrayOutputStream());
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        }, "control-reader");
+        reader.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reader.getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) fail("Reader never blocked on the full queue");
+            Thread.sleep(1);
+        }
+
+        dispatcher.close();
+        reader.join(1000);
+        assertFalse("Reader still running after close()", reader.isAlive());
+        // Interrupted in put(), or woken by the cleared queue and stopped at the next command
+        assertTrue(String.valueOf(outcome.get()), outcome.get() == null || outcome.get() instanceof InterruptedException);
+
+        // A drain that was already posted must not deliver anything from the closed connection
+        for (Runnable drain : pendingDrains.toArray(new Runnable[0])) {
+            drain.run();
+        }
+        assertEquals(0, delivered.get());
+    }
+
+    @Test
+    public void rejectsMalformedPayloads() {
+        ControlProtocol.CommandHandler ignore = new ControlProtocol.CommandHandler() {
+            @Override
+            public void onStart() {
+            }
+
+            @Override
+            public void onStop() {
+            }
+
+            @Override
+            public void onSetPosition(int x, int y) {
+            }
+
+            @Override
+            public void onSetTracking(boolean enabled) {
+            }
+
+            @Override
+            public void onPing(int token) {
+            }
+        };
+
+        byte[][] payloads = {
+            {0x7F},
+            {ControlProtocol.CMD_SET_POSITION, 0, 1, 0},
+            {ControlProtocol.CMD_PING, 0, 0},
+        };
+        for (byte[] payload : payloads) {
+            try {
+                ControlProtocol.decode(ByteBuffer.wrap(payload), ignore);
+                fail("Accepted " + Arrays.toString(payload));
+            } catch (ProtocolException expected) {
+            }
+        }
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile / 100.0 * sorted.length) - 1);
+        return sorted[index] / 1000.0;
+    }
+
+    /**
+     * Loopback TCP front for {@link ControlDispatcher}, in place of ControlServer's LocalServerSocket.
+     */
+    private static class LoopbackServer implements ControlDispatcher.Listener {
+        final AtomicInteger positions = new AtomicInteger();
+        final AtomicInteger lastPosition = new AtomicInteger();
+        final AtomicInteger starts = new AtomicInteger();
+        final AtomicInteger stops = new AtomicInteger();
+        final List<String> log = Collections.synchronizedList(new ArrayList<>());
+        volatile long commandDelayNanos = 0;
+
+        private final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        private final ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        final ControlDispatcher dispatcher = new ControlDispatcher(mainThread, this);
+        private final Thread acceptThread = new Thread(this::acceptLoop, "control-accept");
+
+        LoopbackServer() throws IOException {
+            acceptThread.start();
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        /**
+         * Drains always run to an empty queue, so once a task queued after them has run,
+         * every command queued before this call has been handled.
+         */
+        void awaitDrained() throws Exception {
+            mainThread.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+            dispatcher.close();
+            mainThread.shutdownNow();
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                    socket.setTcpNoDelay(true);
+                } catch (IOException e) {
+                    return;
+                }
+                new Thread(() -> readLoop(socket), "control-client").start();
+            }
+        }
+
+        private void readLoop(Socket socket) {
+            try (Socket client = socket) {
+                dispatcher.serve(client.getInputStream(), client.getOutputStream());
+            } catch (IOException | InterruptedException e) {
+                // Client disconnected or server closed
+            }
+        }
+
+        private void spin() {
+            if (commandDelayNanos > 0) {
+                long until = System.nanoTime() + commandDelayNanos;
+                while (System.nanoTime() < until) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        @Override
+        public void onStartCommand() {
+            spin();
+            starts.incrementAndGet();
+            log.add("start");
+        }
+
+        @Override
+        public void onStopCommand() {
+            spin();
+            stops.incrementAndGet();
+            log.add("stop");
+        }
+
+        @Override
+        public void onSetPositionCommand(int x, int y) {
+            spin();
+            positions.incrementAndGet();
+            lastPosition.set(x << 16 | y);
+            log.add("position " + x + "," + y);
+        }
+
+        @Override
+        public void onSetTrackingCommand(boolean enabled) {
+            spin();
+            log.add("tracking " + enabled);
+        }
+    }
+}
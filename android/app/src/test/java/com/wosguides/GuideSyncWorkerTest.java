@@ -0,0 +1,387 @@
+package com.wosguides;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs {@link GuideSyncWorker} against a local mock of the guides API that honours
+ * If-None-Match, serves gzip when asked, and can simulate large catalogs, edits,
+ * removals and failing downloads.
+ */
+public class GuideSyncWorkerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockApi api;
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private GuideCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        api = new MockApi();
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", api::handle);
+        server.setExecutor(serverExecutor);
+        server.start();
+        cache = new GuideCache(folder.newFolder("guide_cache"));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void firstSyncOnlyRecordsWatermarks() throws IOException {
+        api.addGuides(50, false);
+
+        GuideSyncWorker.Result result = sync("en");
+
+        assertTrue(result.fullRefresh);
+        assertTrue(result.changedGuideIds.isEmpty());
+        assertEquals(0, api.detailRequests.get());
+        assertEquals(50, cache.getEntries().size());
+    }
+
+    @Test
+    public void unchangedCatalogCostsTwoNotModified() throws IOException {
+        api.addGuides(200, true);
+        sync("en");
+        api.requests.clear();
+
+        GuideSyncWorker.Result result = sync("en");
+
+        assertFalse(result.fullRefresh);
+        assertFalse(result.categoriesChanged);
+        assertTrue(result.changedGuideIds.isEmpty());
+        assertTrue(result.removedGuideIds.isEmpty());
+        assertEquals(Arrays.asList("/categories 304", "/guides 304"), sorted(api.requests));
+    }
+
+    @Test
+    public void partialChangeInLargeCatalogDownloadsOnlyChangedGuides() throws IOException {
+        api.addGuides(5000, false);
+        sync("en");
+
+        List<String> edited = Arrays.asList("g17", "g2500", "g4999");
+        for (String id : edited) {
+            api.edit(id);
+        }
+        api.requests.clear();
+
+        GuideSyncWorker.Result result = sync("en");
+
+        assertEquals(new HashSet<>(edited), new HashSet<>(result.changedGuideIds));
+        assertEquals(3, api.detailRequests.get());
+        for (String id : edited) {
+            JSONObject cached = new JSONObject(cache.readGuide(id));
+            assertEquals(api.guides.get(id).html(), cached.getString("htmlContent"));
+        }
+        assertNull(cache.readGuide("g18"));
+    }
+
+    @Test
+    public void downloadsAreBoundedByParallelism() throws IOException {
+        api.addGuides(500, false);
+        sync("en");
+        for (int i = 0; i < 40; i++) {
+            api.edit("g" + i);
+        }
+        api.detailDelayMillis = 5;
+
+        GuideSyncWorker.Result result = new GuideSyncWorker(api.baseUrl(), cache, "en", 3).sync();
+
+        assertEquals(40, result.changedGuideIds.size());
+        assertTrue("max concurrent " + api.maxConcurrentDetails.get(), api.maxConcurrentDetails.get() <= 3);
+    }
+
+    @Test
+    public void listWithContentNeedsNoDetailRequests() throws IOException {
+        api.addGuides(1000, true);
+        sync("en");
+        api.edit("g10");
+        api.edit("g900");
+
+        GuideSyncWorker.Result result = sync("en");
+
+        assertEquals(new HashSet<>(Arrays.asList("g10", "g900")), new HashSet<>(result.changedGuideIds));
+        assertEquals(0, api.detailRequests.get());
+        assertEquals(api.guides.get("g900").html(), new JSONObject(cache.readGuide("g900")).getString("htmlContent"));
+    }
+
+    @Test
+    public void removedGuidesAreReportedAndDeleted() throws IOException {
+        api.addGuides(100, false);
+        sync("en");
+        api.edit("g5");
+        sync("en");
+        assertTrue(cache.readGuide("g5") != null);
+
+        api.remove("g5");
+        api.remove("g6");
+        GuideSyncWorker.Result result = sync("en");
+
+        assertEquals(new HashSet<>(Arrays.asList("g5", "g6")), new HashSet<>(result.removedGuideIds));
+        assertTrue(result.changedGuideIds.isEmpty());
+        assertNull(cache.readGuide("g5"));
+        assertEquals(98, cache.getEntries().size());
+    }
+
+    @Test
+    public void decodesGzipAndPlainBodies() throws IOException {
+        api.addGuides(300, false);
+        sync("en");
+        api.edit("g1");
+        GuideSyncWorker.Result gzipped = sync("en");
+        assertTrue(api.gzippedResponses.get() > 0);
+        assertEquals(Collections.singletonList("g1"), gzipped.changedGuideIds);
+
+        api.gzip = false;
+        api.edit("g2");
+        GuideSyncWorker.Result plain = sync("en");
+        assertEquals(Collections.singletonList("g2"), plain.changedGuideIds);
+        assertEquals(api.guides.get("g2").html(), new JSONObject(cache.readGuide("g2")).getString("htmlContent"));
+    }
+
+    @Test
+    public void languageSwitchStartsOver() throws IOException {
+        api.addGuides(100, false);
+        sync("en");
+        api.edit("g1");
+        sync("en");
+        api.requests.clear();
+
+        GuideSyncWorker.Result result = sync("fr");
+
+        assertTrue(result.fullRefresh);
+        assertEquals("fr", api.lastLanguage);
+        // Validators from the English cache must not be sent for French content
+        assertEquals(Arrays.asList("/categories 200", "/guides 200"), sorted(api.requests));
+        assertNull(cache.readGuide("g1"));
+    }
+
+    @Test
+    public void failedDownloadDoesNotPersistListValidators() throws IOException {
+        api.addGuides(100, false);
+        sync("en");
+        String staleListEtag = api.listEtag();
+        api.edit("g3");
+        api.edit("g4");
+        api.failingGuideId = "g4";
+
+        try {
+            sync("en");
+            fail("Sync should fail when a guide download fails");
+        } catch (IOException expected) {
+        }
+
+        api.failingGuideId = null;
+        api.listIfNoneMatch.clear();
+        GuideSyncWorker.Result result = sync("en");
+
+        // The list was asked for with the validators from before the failed sync
+        assertEquals(Collections.singletonList(staleListEtag), api.listIfNoneMatch);
+        assertEquals(new HashSet<>(Arrays.asList("g3", "g4")), new HashSet<>(result.changedGuideIds));
+    }
+
+    private GuideSyncWorker.Result sync(String language) throws IOException {
+        api.detailRequests.set(0);
+        return new GuideSyncWorker(api.baseUrl(), cache, language).sync();
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private class MockApi {
+        final Map<String, MockGuide> guides = Collections.synchronizedMap(new LinkedHashMap<>());
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        final List<String> listIfNoneMatch = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger detailRequests = new AtomicInteger();
+        final AtomicInteger gzippedResponses = new AtomicInteger();
+        final AtomicInteger concurrentDetails = new AtomicInteger();
+        final AtomicInteger maxConcurrentDetails = new AtomicInteger();
+        volatile boolean gzip = true;
+        volatile boolean listIncludesContent;
+        volatile String failingGuideId;
+        volatile String lastLanguage;
+        volatile long detailDelayMillis;
+        private int listRevision;
+
+        String baseUrl() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        void addGuides(int count, boolean includeContent) {
+            listIncludesContent = includeContent;
+            for (int i = 0; i < count; i++) {
+                guides.put("g" + i, new MockGuide("g" + i));
+            }
+            listRevision++;
+        }
+
+        synchronized void edit(String id) {
+            guides.get(id).version++;
+            listRevision++;
+        }
+
+        synchronized void remove(String id) {
+            guides.remove(id);
+            listRevision++;
+        }
+
+        synchronized String listEtag() {
+            return "\"list-" + listRevision + "\"";
+        }
+
+        void handle(HttpExchange exchange) throws IOException {
+            String path = exchange.getRequestURI().getPath();
+            lastLanguage = exchange.getRequestHeaders().getFirst("Language");
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+
+            if (path.equals("/categories")) {
+                JSONArray categories = new JSONArray().put(new JSONObject().put("_id", "c1").put("name", "Events"));
+                respond(exchange, path, "\"categories-1\"", ifNoneMatch, wrap(categories));
+            } else if (path.equals("/guides")) {
+                listIfNoneMatch.add(ifNoneMatch);
+                JSONArray list = new JSONArray();
+                synchronized (guides) {
+                    for (MockGuide guide : guides.values()) {
+                        list.put(guide.toJson(listIncludesContent));
+                    }
+                }
+                respond(exchange, path, listEtag(), ifNoneMatch, wrap(list));
+            } else if (path.startsWith("/guides/")) {
+                detailRequests.incrementAndGet();
+                int concurrent = concurrentDetails.incrementAndGet();
+                maxConcurrentDetails.accumulateAndGet(concurrent, Math::max);
+                try {
+                    if (detailDelayMillis > 0) {
+                        Thread.sleep(detailDelayMillis);
+                    }
+                    String id = path.substring("/guides/".length());
+                    MockGuide guide = guides.get(id);
+                    if (guide == null || id.equals(failingGuideId)) {
+                        requests.add(path + " 500");
+                        exchange.sendResponseHeaders(500, -1);
+                        exchange.close();
+                        return;
+                    }
+                    respond(exchange, "/guides/:id", "\"" + id + "-" + guide.version + "\"", ifNoneMatch,
+                            wrap(guide.toJson(true)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrentDetails.decrementAndGet();
+                }
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        }
+
+        private String wrap(Object data) {
+            int count = data instanceof JSONArray ? ((JSONArray) data).length() : 1;
+            return new JSONObject().put("success", true).put("count", count).put("data", data).toString();
+        }
+
+        private void respond(HttpExchange exchange, String path, String etag, String ifNoneMatch, String body)
+                throws IOException {
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(ifNoneMatch)) {
+                requests.add(path + " 304");
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            requests.add(path + " 200");
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(bytes);
+                }
+                bytes = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                gzippedResponses.incrementAndGet();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class MockGuide {
+        final String id;
+        volatile int version;
+
+        MockGuide(String id) {
+            this.id = id;
+        }
+
+        String html() {
+            // Bulky, multilingual-sized body so large catalogs are realistic
+            StringBuilder html = new StringBuilder("<h1>" + id + " v" + version + "</h1>");
+            for (int i = 0; i < 20; i++) {
+                html.append("<p>Step ").append(i).append(" of the guide</p>");
+            }
+            return html.toString();
+        }
+
+        JSONObject toJson(boolean includeContent) {
+            JSONObject json = new JSONObject()
+                    .put("_id", id)
+                    .put("title", new JSONObject().put("en", "Guide " + id).put("fr", "Guide " + id))
+                    .put("category", "c1")
+                    .put("isActive", true)
+                    .put("createdAt", "2024-01-01T00:00:00.000Z")
+                    .put("updatedAt", String.format("2024-01-01T00:00:00.%03dZ", version))
+                    .put("__v", version);
+            if (includeContent) {
+                json.put("htmlContent", html());
+            }
+            return json;
+        }
+    }
+}
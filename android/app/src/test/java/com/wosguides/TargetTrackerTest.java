@@ -0,0 +1,238 @@
+package com.wosguides;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Drives {@link TargetTracker} with synthetic sprites moving over a flat background,
+ * reading frames the same way AutoClickerService does: only the clamped search window.
+ */
+public class TargetTrackerTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int BACKGROUND = 90;
+    private static final long FRAME_MILLIS = 550; // Click interval plus gesture time
+
+    @Test
+    public void followsLinearMotion() {
+        TargetTracker tracker = new TargetTracker();
+        Sprite sprite = new Sprite(32, 1);
+        int x = 200;
+        int y = 300;
+        assertTrue(seed(tracker, sprite, x, y, 0));
+
+        for (int frame = 0; frame < 80; frame++) {
+            x += 7;
+            y += 3;
+            assertTrue("lost at frame " + frame, update(tracker, sprite, x, y, (frame + 1) * FRAME_MILLIS));
+            assertPosition(frame, x, y, tracker);
+        }
+    }
+
+    @Test
+    public void followsBobbingMotion() {
+        TargetTracker tracker = new TargetTracker();
+        Sprite sprite = new Sprite(16, 2);
+        int baseX = 540;
+        int baseY = 900;
+        assertTrue(seed(tracker, sprite, baseX, baseY, 0));
+
+        for (int frame = 1; frame <= 40; frame++) {
+            // Icon bobbing up and down while drifting sideways, like event markers do
+            int x = baseX + (int) Math.round(12 * Math.sin(frame / 2.0));
+            int y = baseY + (int) Math.round(20 * Math.sin(frame / 1.5));
+            assertTrue("lost at frame " + frame, update(tracker, sprite, x, y, frame * FRAME_MILLIS));
+            assertPosition(frame, x, y, tracker);
+        }
+    }
+
+    @Test
+    public void followsUnevenlySpacedFrames() {
+        TargetTracker tracker = new TargetTracker();
+        Sprite sprite = new Sprite(24, 6);
+        // 40 px/s sideways, 10 px/s down. Frames arrive 350 ms to 1.65 s apart, as when screenshots
+        // are rate limited or fail; the long gaps move the sprite further than the search radius
+        long[] gaps = {550, 1100, 350, 1650, 600, 1000, 350, 1650, 1000, 550};
+        long time = 0;
+        assertTrue(seed(tracker, sprite, 150, 800, time));
+
+        for (int frame = 0; frame < 20; frame++) {
+            time += gaps[frame % gaps.length];
+            int x = 150 + (int) (time * 40 / 1000);
+            int y = 800 + (int) (time * 10 / 1000);
+            assertTrue("lost at frame " + frame, update(tracker, sprite, x, y, time));
+            assertPosition(frame, x, y, tracker);
+        }
+    }
+
+    @Test
+    public void reportsLostWhenOccludedAndRecovers() {
+        TargetTracker tracker = new TargetTracker();
+        Sprite sprite = new Sprite(32, 3);
+        assertTrue(seed(tracker, sprite, 400, 400, 0));
+        assertTrue(update(tracker, sprite, 410, 400, FRAME_MILLIS));
+
+        // Sprite gone: the tracker must not invent a position
+        assertFalse(updateWithout(tracker, 2 * FRAME_MILLIS));
+        assertEquals(410, tracker.getX());
+        assertEquals(400, tracker.getY());
+
+        // Back within the search window of the last confirmed position
+        assertTrue(update(tracker, sprite, 420, 405, 3 * FRAME_MILLIS));
+        assertEquals(420, tracker.getX());
+        assertEquals(405, tracker.getY());
+    }
+
+    @Test
+    public void clampsSearchToScreenEdges() {
+        TargetTracker tracker = new TargetTracker();
+        Sprite sprite = new Sprite(32, 4);
+
+        // The patch must fit on screen to seed
+        assertFalse(seed(tracker, sprite, 10, 10, 0));
+        assertTrue(seed(tracker, sprite, 30, 30, 0));
+
+        // Moving into the corner, the search window is cut by the screen edges
+        int[] path = {28, 26, 25, 24};
+        for (int i = 0; i < path.length; i++) {
+            assertTrue("lost at step " + i, update(tracker, sprite, path[i], path[i], (i + 1) * FRAME_MILLIS));
+            assertPosition(i, path[i], path[i], tracker);
+        }
+
+        // And out along the far edge
+        TargetTracker far = new TargetTracker();
+        int x = WIDTH - 60;
+        assertTrue(seed(far, sprite, x, HEIGHT - 30, 0));
+        for (int step = 0; step < 5; step++) {
+            x += 7;
+            assertTrue("lost at far step " + step, update(far, sprite, x, HEIGHT - 30, (step + 1) * FRAME_MILLIS));
+            assertPosition(step, x, HEIGHT - 30, far);
+        }
+    }
+
+    @Test
+    public void benchmarkUpdate() {
+        Sprite sprite = new Sprite(32, 5);
+        int y = 960;
+
+        // Warm up the JIT on a throwaway tracker
+        TargetTracker warmup = new TargetTracker();
+        seed(warmup, sprite, 200, y, 0);
+        for (int i = 1; i <= 200; i++) {
+            update(warmup, sprite, pathX(i), y, i * FRAME_MILLIS);
+        }
+
+        TargetTracker tracker = new TargetTracker();
+        seed(tracker, sprite, 200, y, 0);
+        int frames = 500;
+        long elapsed = 0;
+        for (int i = 1; i <= frames; i++) {
+            int x = pathX(i);
+            // Rendering is not timed, only the tracker
+            long time = i * FRAME_MILLIS;
+            Window window = render(tracker.getSearchBounds(time), sprite, x, y);
+            long start = System.nanoTime();
+            boolean found = tracker.update(window.luma, window.left, window.top, window.width, window.height, time);
+            elapsed += System.nanoTime() - start;
+            assertTrue("lost at frame " + i, found);
+        }
+
+        double microsPerFrame = elapsed / 1000.0 / frames;
+        System.out.printf("TargetTracker.update: %.1f us/frame over %d frames%n", microsPerFrame, frames);
+        // Generous bound, the click interval is 500ms
+        assertTrue("update too slow: " + microsPerFrame + "us", microsPerFrame < 20000);
+    }
+
+    // Sweeps back and forth across the screen, 3px per frame
+    private static int pathX(int frame) {
+        int phase = (frame * 3) % 1200;
+        return 200 + (phase < 600 ? phase : 1200 - phase);
+    }
+
+    private static void assertPosition(int frame, int x, int y, TargetTracker tracker) {
+        assertEquals("x at frame " + frame, x, tracker.getX());
+        assertEquals("y at frame " + frame, y, tracker.getY());
+    }
+
+    private static boolean seed(TargetTracker tracker, Sprite sprite, int x, int y, long time) {
+        Window window = render(tracker.getSeedBounds(x, y), sprite, x, y);
+        return window != null && tracker.seed(window.luma, window.left, window.top,
+                window.width, window.height, x, y, time);
+    }
+
+    private static boolean update(TargetTracker tracker, Sprite sprite, int x, int y, long time) {
+        Window window = render(tracker.getSearchBounds(time), sprite, x, y);
+        return window != null && tracker.update(window.luma, window.left, window.top,
+                window.width, window.height, time);
+    }
+
+    private static boolean updateWithout(TargetTracker tracker, long time) {
+        Window window = render(tracker.getSearchBounds(time), null, 0, 0);
+        return window != null && tracker.update(window.luma, window.left, window.top,
+                window.width, window.height, time);
+    }
+
+    /**
+     * Renders the part of the screen inside bounds, clamped to the screen like the service does.
+     */
+    private static Window render(int[] bounds, Sprite sprite, int centerX, int centerY) {
+        int left = Math.max(0, bounds[0]);
+        int top = Math.max(0, bounds[1]);
+        int right = Math.min(WIDTH, bounds[2]);
+        int bottom = Math.min(HEIGHT, bounds[3]);
+        if (right <= left || bottom <= top) return null;
+
+        Window window = new Window(left, top, right - left, bottom - top);
+        Arrays.fill(window.luma, (byte) BACKGROUND);
+        if (sprite != null) {
+            int half = sprite.size / 2;
+            for (int row = 0; row < sprite.size; row++) {
+                int screenY = centerY - half + row - top;
+                if (screenY < 0 || screenY >= window.height) continue;
+                for (int col = 0; col < sprite.size; col++) {
+                    int screenX = centerX - half + col - left;
+                    if (screenX < 0 || screenX >= window.width) continue;
+                    window.luma[screenY * window.width + screenX] = sprite.pixels[row * sprite.size + col];
+                }
+            }
+        }
+        return window;
+    }
+
+    private static class Sprite {
+        final int size;
+        final byte[] pixels;
+
+        Sprite(int size, long seed) {
+            this.size = size;
+            this.pixels = new byte[size * size];
+            Random random = new Random(seed);
+            for (int i = 0; i < pixels.length; i++) {
+                // Bright, textured icon that stands out from the background
+                pixels[i] = (byte) (150 + random.nextInt(100));
+            }
+        }
+    }
+
+    private static class Window {
+        final int left;
+        final int top;
+        final int width;
+        final int height;
+        final byte[] luma;
+
+        Window(int left, int top, int width, int height) {
+            this.left = left;
+            this.top = top;
+            this.width = width;
+            this.height = height;
+            this.luma = new byte[width * height];
+        }
+    }
+}
@@ -2,6 +2,7 @@ import { QueryClient } from '@tanstack/react-query';
 import type { Persister, PersistedClient } from '@tanstack/react-query-persist-client';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import NetInfo from '@react-native-community/netinfo';
+import { isGuideSyncAvailable, syncGuides } from '../services/guideSync';
 
 export const queryClient = new QueryClient({
   defaultOptions: {
@@ -52,7 +53,15 @@ NetInfo.addEventListener(state => {
   const isOnline = state.isConnected && state.isInternetReachable;
 
   if (isOnline) {
-    // When back online, invalidate all queries to fetch fresh data
-    queryClient.invalidateQueries();
+    if (isGuideSyncAvailable) {
+      // When back online, pull only what changed and patch the cache in place
+      syncGuides(queryClient).catch(error => {
+        console.error('Guide sync failed, refetching everything:', error);
+        queryClient.invalidateQueries();
+      });
+    } else {
+      // When back online, invalidate all queries to fetch fresh data
+      queryClient.invalidateQueries();
+    }
   }
 });
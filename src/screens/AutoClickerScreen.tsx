@@ -9,6 +9,7 @@ import {
   Alert,
   NativeModules,
   AppState,
+  Switch,
 } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import { useTranslation } from 'react-i18next';
@@ -22,6 +23,8 @@ function AutoClickerScreen() {
   const [hasOverlayPermission, setHasOverlayPermission] = useState(false);
   const [hasAccessibilityPermission, setHasAccessibilityPermission] = useState(false);
   const [isOverlayActive, setIsOverlayActive] = useState(false);
+  const [isTrackingEnabled, setIsTrackingEnabled] = useState(false);
+  const [isControlServerEnabled, setIsControlServerEnabled] = useState(false);
 
   useEffect(() => {
     checkPermissions();
@@ -42,8 +45,13 @@ function AutoClickerScreen() {
     try {
       const hasOverlay = await AutoClickerModule.checkOverlayPermission();
       const hasAccessibility = await AutoClickerModule.checkAccessibilityService();
+      const trackingEnabled = await AutoClickerModule.isTrackingEnabled();
+      const controlServerEnabled = await AutoClickerModule.isControlServerEnabled();
       setHasOverlayPermission(hasOverlay);
       setHasAccessibilityPermission(hasAccessibility);
+      // Tracking outlives this screen, so show the native state rather than a default
+      setIsTrackingEnabled(trackingEnabled);
+      setIsControlServerEnabled(controlServerEnabled);
     } catch (error) {
       console.error('Error checking permissions:', error);
     }
@@ -111,6 +119,26 @@ function AutoClickerScreen() {
     }
   };
 
+  const toggleTracking = async (enabled: boolean) => {
+    try {
+      await AutoClickerModule.setTrackingEnabled(enabled);
+      setIsTrackingEnabled(enabled);
+    } catch (error) {
+      setIsTrackingEnabled(false);
+      Alert.alert('Error', 'Moving target tracking requires Android 11 or newer');
+    }
+  };
+
+  const toggleControlServer = async (enabled: boolean) => {
+    try {
+      await AutoClickerModule.setControlServerEnabled(enabled);
+      setIsControlServerEnabled(enabled);
+    } catch (error) {
+      setIsControlServerEnabled(false);
+      Alert.alert('Error', 'Failed to change the control socket');
+    }
+  };
+
   const stopAutoClicker = async () => {
     try {
       await AutoClickerModule.stopOverlayService();
@@ -178,6 +206,36 @@ function AutoClickerScreen() {
             </View>
           </View>
 
+          <View style={styles.trackingRow}>
+            <View style={styles.trackingLabel}>
+              <MaterialCommunityIcons name="crosshairs-gps" size={20} color={theme.colors.accent} />
+              <View>
+                <Text style={styles.permissionText}>Follow moving target</Text>
+                <Text style={styles.trackingHint}>Re-aim at drifting icons before each tap</Text>
+              </View>
+            </View>
+            <Switch
+              value={isTrackingEnabled}
+              onValueChange={toggleTracking}
+              trackColor={{ false: theme.colors.border, true: theme.colors.success }}
+            />
+          </View>
+
+          <View style={styles.trackingRow}>
+            <View style={styles.trackingLabel}>
+              <MaterialCommunityIcons name="lan-connect" size={20} color={theme.colors.accent} />
+              <View>
+                <Text style={styles.permissionText}>Desktop control socket</Text>
+                <Text style={styles.trackingHint}>adb forward tcp:PORT localabstract:wosguides_control</Text>
+              </View>
+            </View>
+            <Switch
+              value={isControlServerEnabled}
+              onValueChange={toggleControlServer}
+              trackColor={{ false: theme.colors.border, true: theme.colors.success }}
+            />
+          </View>
+
           <View style={styles.buttonContainer}>
             {!hasOverlayPermission && (
               <TouchableOpacity
@@ -344,6 +402,28 @@ const styles = StyleSheet.create({
   permissionRequired: {
     color: theme.colors.danger,
   },
+  trackingRow: {
+    flexDirection: 'row',
+    alignItems: 'center',
+    justifyContent: 'space-between',
+    marginBottom: theme.spacing.lg,
+    backgroundColor: theme.colors.surface,
+    padding: theme.spacing.md,
+    borderRadius: theme.borderRadius.md,
+    borderWidth: 1,
+    borderColor: theme.colors.border,
+  },
+  trackingLabel: {
+    flexDirection: 'row',
+    alignItems: 'center',
+    gap: theme.spacing.sm,
+    flexShrink: 1,
+  },
+  trackingHint: {
+    fontSize: theme.typography.sizes.sm,
+    color: theme.colors.textSecondary,
+    fontStyle: 'italic',
+  },
   buttonContainer: {
     gap: theme.spacing.md,
   },
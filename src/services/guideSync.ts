@@ -0,0 +1,123 @@
+import { NativeModules, Platform } from 'react-native';
+import type { QueryClient } from '@tanstack/react-query';
+import { queryKeys } from '../hooks/useApi';
+import type { Guide } from '../types/api';
+import i18n from '../i18n';
+
+interface GuideSyncResult {
+  changedGuideIds: string[];
+  removedGuideIds: string[];
+  categoriesChanged: boolean;
+  fullRefresh: boolean;
+}
+
+interface GuideSyncNativeModule {
+  sync(language: string): Promise<GuideSyncResult>;
+  readGuides(ids: string[]): Promise<(string | null)[]>;
+}
+
+const GuideSyncModule: GuideSyncNativeModule | undefined = NativeModules.GuideSyncModule;
+
+// Above this many changed guides, refetching is cheaper than pulling every htmlContent over the bridge
+const MAX_PATCHED_GUIDES = 20;
+
+export const isGuideSyncAvailable = Platform.OS === 'android' && !!GuideSyncModule;
+
+// Rebuild a cached guide list with the changed guides swapped in and removed ones dropped
+const applyChanges = (
+  guides: Guide[],
+  changed: Map<string, Guide>,
+  removed: Set<string>,
+  belongs: (guide: Guide) => boolean
+): Guide[] => {
+  const seen = new Set<string>();
+  const next: Guide[] = [];
+
+  for (const guide of guides) {
+    seen.add(guide._id);
+    if (removed.has(guide._id)) {
+      continue;
+    }
+    const updated = changed.get(guide._id);
+    if (!updated) {
+      next.push(guide);
+    } else if (belongs(updated)) {
+      next.push(updated);
+    }
+  }
+
+  changed.forEach((guide, id) => {
+    if (!seen.has(id) && belongs(guide)) {
+      next.push(guide);
+    }
+  });
+
+  return next;
+};
+
+/**
+ * Runs the native delta sync and patches the cached queries with only the guides that changed,
+ * instead of refetching every cached category and guide.
+ */
+export const syncGuides = async (client: QueryClient): Promise<void> => {
+  if (!GuideSyncModule) {
+    throw new Error('GuideSyncModule is not available');
+  }
+
+  const result = await GuideSyncModule.sync(i18n.language || 'en');
+
+  // First sync or language switch: nothing to diff against yet, refresh everything once
+  if (result.fullRefresh) {
+    client.invalidateQueries();
+    return;
+  }
+
+  if (result.categoriesChanged) {
+    client.invalidateQueries({ queryKey: queryKeys.categories });
+  }
+
+  if (result.changedGuideIds.length === 0 && result.removedGuideIds.length === 0) {
+    return;
+  }
+
+  if (result.changedGuideIds.length > MAX_PATCHED_GUIDES) {
+    client.invalidateQueries({ queryKey: queryKeys.guides });
+    return;
+  }
+
+  const rawGuides = await GuideSyncModule.readGuides(result.changedGuideIds);
+  const changed = new Map<string, Guide>();
+  rawGuides.forEach(json => {
+    if (json) {
+      const guide: Guide = JSON.parse(json);
+      changed.set(guide._id, guide);
+    }
+  });
+  const removed = new Set(result.removedGuideIds);
+
+  changed.forEach((guide, id) => {
+    client.setQueryData(queryKeys.guide(id), guide);
+  });
+  removed.forEach(id => {
+    client.removeQueries({ queryKey: queryKeys.guide(id), exact: true });
+  });
+
+  client.setQueryData<Guide[]>(queryKeys.guides, old =>
+    old ? applyChanges(old, changed, removed, () => true) : old
+  );
+
+  client
+    .getQueriesData<Guide[]>({ queryKey: ['guides', 'category'] })
+    .forEach(([queryKey, data]) => {
+      const categoryId = queryKey[2];
+      if (data) {
+        client.setQueryData(
+          queryKey,
+          applyChanges(data, changed, removed, guide => guide.category === categoryId)
+        );
+      }
+    });
+
+  // Search results can't be patched locally, refetch them the next time they're shown
+  client.invalidateQueries({ queryKey: ['guides', 'search'] });
+};